@@ -0,0 +1,237 @@
+package org.example;
+
+import org.lmdbjava.Dbi;
+import org.lmdbjava.DbiFlags;
+import org.lmdbjava.Env;
+import org.lmdbjava.Stat;
+import org.lmdbjava.Txn;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.lmdbjava.Env.create;
+
+/**
+ * Ingests in-memory generated pixels straight into LMDB, once per {@link ImageCodec}, skipping the
+ * PNG-file round trip of the other benchmarks. Reads decode back to a {@link BufferedImage}, so read
+ * latency is end-to-end (get + decode).
+ */
+public class EncodedIngestBenchmark {
+    public static class CodecSummary {
+        public final ImageCodec codec;
+        public final long items;
+        public final long storedBytes;
+        public final long engineBytes;
+        public final long encodeCpuNanos;
+        public final long writeMillis;
+        public final long readMillis;
+        public final long[] readLatencyNanos;
+
+        public CodecSummary(ImageCodec codec, long items, long storedBytes, long engineBytes, long encodeCpuNanos,
+                            long writeMillis, long readMillis, long[] readLatencyNanos) {
+            this.codec = codec;
+            this.items = items;
+            this.storedBytes = storedBytes;
+            this.engineBytes = engineBytes;
+            this.encodeCpuNanos = encodeCpuNanos;
+            this.writeMillis = writeMillis;
+            this.readMillis = readMillis;
+            this.readLatencyNanos = readLatencyNanos;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int numImages = getIntArg(args, 0, 10000);
+        int pixelsPerSide = getIntArg(args, 1, 128);
+        String lmdbDirPath = getStringArg(args, 2, "./lmdbdata-encoded");
+        int threads = getIntArg(args, 3, Math.max(2, Runtime.getRuntime().availableProcessors()));
+        int batchSize = getIntArg(args, 4, 1000);
+        List<ImageCodec> codecs = parseCodecs(getStringArg(args, 5, "RAW,LZ4,QOI,PNG"));
+
+        File lmdbDir = new File(lmdbDirPath);
+        if (!lmdbDir.exists()) lmdbDir.mkdirs();
+
+        ThreadMXBean threadMx = ManagementFactory.getThreadMXBean();
+        if (threadMx.isThreadCpuTimeSupported() && !threadMx.isThreadCpuTimeEnabled()) {
+            threadMx.setThreadCpuTimeEnabled(true);
+        }
+        long rawBytesPerImage = (long) pixelsPerSide * pixelsPerSide * 4;
+
+        try (ResourceSampler sampler = new ResourceSampler();
+             Env<ByteBuffer> env = create()
+                .setMapSize(10L * 1024 * 1024 * 1024) // 10GB
+                .setMaxDbs(ImageCodec.values().length)
+                .open(lmdbDir)) {
+
+            List<CodecSummary> summaries = new ArrayList<>();
+            for (ImageCodec codec : codecs) {
+                Dbi<ByteBuffer> db = env.openDbi("images_" + codec.name().toLowerCase(), DbiFlags.MDB_CREATE);
+                String op = codec.name().toLowerCase();
+                // Start every codec from an empty database so reruns measure a fresh load and engine size
+                try (Txn<ByteBuffer> txn = env.txnWrite()) {
+                    db.drop(txn);
+                    txn.commit();
+                }
+
+                LongAdder encodeCpuNanos = new LongAdder();
+                ResultSummary write = runSequentialBatchesWithParallelItems(numImages, batchSize, threads, i -> {
+                    int[] pixels = ImageGenerator.renderPixels(i, pixelsPerSide);
+                    long cpuStart = threadMx.getCurrentThreadCpuTime();
+                    byte[] bytes = codec.encode(pixels, pixelsPerSide, pixelsPerSide);
+                    encodeCpuNanos.add(threadMx.getCurrentThreadCpuTime() - cpuStart);
+                    ByteBuffer key = keyOf(i);
+                    ByteBuffer val = ByteBuffer.allocateDirect(bytes.length);
+                    val.put(bytes).flip();
+                    try (Txn<ByteBuffer> txn = env.txnWrite()) {
+                        db.put(txn, key, val);
+                        txn.commit();
+                    }
+                    return (long) bytes.length;
+                }, op + "-write", sampler);
+
+                long[] latencies = new long[numImages];
+                ResultSummary read = runSequentialBatchesWithParallelItems(numImages, batchSize, threads, i -> {
+                    ByteBuffer key = keyOf(i);
+                    long start = System.nanoTime();
+                    byte[] bytes;
+                    try (Txn<ByteBuffer> txn = env.txnRead()) {
+                        ByteBuffer found = db.get(txn, key);
+                        if (found == null) {
+                            throw new IllegalStateException("Missing " + codec + " value for image " + i);
+                        }
+                        bytes = new byte[found.remaining()];
+                        found.get(bytes);
+                    }
+                    BufferedImage image = codec.decode(bytes);
+                    latencies[i] = System.nanoTime() - start;
+                    if (image.getWidth() != pixelsPerSide) {
+                        throw new IllegalStateException("Decoded " + codec + " image has width " + image.getWidth());
+                    }
+                    return (long) bytes.length;
+                }, op + "-read", sampler);
+
+                long engineBytes;
+                try (Txn<ByteBuffer> txn = env.txnRead()) {
+                    Stat stat = db.stat(txn);
+                    engineBytes = (stat.branchPages + stat.leafPages + stat.overflowPages) * (long) stat.pageSize;
+                }
+
+                CodecSummary summary = new CodecSummary(codec, write.itemsProcessed, write.bytesProcessed, engineBytes,
+                        encodeCpuNanos.sum(), write.millis, read.millis, latencies);
+                summaries.add(summary);
+                System.out.printf("%s Write: items=%d, size=%.2f MB, time=%d ms%n", codec, write.itemsProcessed, write.bytesProcessed / (1024.0 * 1024.0), write.millis);
+                System.out.printf("%s Read: items=%d, size=%.2f MB, time=%d ms%n", codec, read.itemsProcessed, read.bytesProcessed / (1024.0 * 1024.0), read.millis);
+            }
+
+            System.out.printf("Encoding comparison: images=%d, size=%dx%d, raw=%.2f KB/image, threads=%d%n",
+                    numImages, pixelsPerSide, pixelsPerSide, rawBytesPerImage / 1024.0, threads);
+            for (CodecSummary s : summaries) {
+                double avgKb = s.items == 0 ? 0.0 : (s.storedBytes / 1024.0) / s.items;
+                double ratio = s.items == 0 ? 0.0 : (double) s.storedBytes / (rawBytesPerImage * s.items);
+                double encodeUsPerItem = s.items == 0 ? 0.0 : s.encodeCpuNanos / 1000.0 / s.items;
+                long[] sorted = s.readLatencyNanos.clone();
+                Arrays.sort(sorted);
+                System.out.printf(
+                        "%-4s stored=%.2f MB (%.2f KB/image, ratio=%.3f), lmdb=%.2f MB, encodeCpu=%d ms (%.1f us/image), write=%d ms, read=%d ms, e2e read p50=%.3f ms p99=%.3f ms max=%.3f ms%n",
+                        s.codec, s.storedBytes / (1024.0 * 1024.0), avgKb, ratio, s.engineBytes / (1024.0 * 1024.0),
+                        s.encodeCpuNanos / 1_000_000, encodeUsPerItem, s.writeMillis, s.readMillis,
+                        percentileMs(sorted, 0.50), percentileMs(sorted, 0.99), percentileMs(sorted, 1.0));
+            }
+            sampler.report();
+        }
+    }
+
+    private static class ResultSummary {
+        final long bytesProcessed;
+        final long itemsProcessed;
+        final long millis;
+
+        ResultSummary(long bytesProcessed, long itemsProcessed, long millis) {
+            this.bytesProcessed = bytesProcessed;
+            this.itemsProcessed = itemsProcessed;
+            this.millis = millis;
+        }
+    }
+
+    private interface IndexJob { long apply(int index) throws Exception; }
+
+    private static ResultSummary runSequentialBatchesWithParallelItems(int count, int batchSize, int threads, IndexJob perItemJob, String opName, ResourceSampler sampler) throws InterruptedException, ExecutionException {
+        if (batchSize <= 0) batchSize = Integer.MAX_VALUE;
+        long totalBytes = 0L;
+        Instant globalStart = Instant.now();
+        int batchNo = 0;
+        for (int from = 0; from < count; from += batchSize) {
+            int to = (int) Math.min(count, (long) from + batchSize);
+            sampler.beginBatch(opName, ++batchNo);
+            long start = System.currentTimeMillis();
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                final int index = i;
+                tasks.add(() -> perItemJob.apply(index));
+            }
+            List<Future<Long>> futures = pool.invokeAll(tasks);
+            pool.shutdown();
+            long bytes = 0L;
+            for (Future<Long> fut : futures) {
+                bytes += fut.get();
+            }
+            long end = System.currentTimeMillis();
+            totalBytes += bytes;
+            ResourceSampler.Segment resources = sampler.endBatch(to - from, bytes);
+            synchronized (System.out) {
+                System.out.printf("%s batch #%d finished by %s: items=%d, start=%d, end=%d, time=%d ms, %s%n",
+                        opName, batchNo, Thread.currentThread().getName(), to - from, start, end, (end - start), resources.summary());
+                System.out.flush();
+            }
+        }
+        long millis = Duration.between(globalStart, Instant.now()).toMillis();
+        return new ResultSummary(totalBytes, count, millis);
+    }
+
+    private static ByteBuffer keyOf(int index) {
+        byte[] name = String.format("img_%06d", index).getBytes(UTF_8);
+        ByteBuffer key = ByteBuffer.allocateDirect(name.length);
+        key.put(name).flip();
+        return key;
+    }
+
+    private static double percentileMs(long[] sortedNanos, double p) {
+        if (sortedNanos.length == 0) return 0.0;
+        int idx = (int) Math.ceil(p * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(sortedNanos.length - 1, idx))] / 1_000_000.0;
+    }
+
+    private static List<ImageCodec> parseCodecs(String csv) {
+        List<ImageCodec> out = new ArrayList<>();
+        for (String name : csv.split(",")) {
+            if (!name.isBlank()) out.add(ImageCodec.valueOf(name.trim().toUpperCase()));
+        }
+        return out;
+    }
+
+    private static int getIntArg(String[] args, int idx, int def) {
+        if (args.length > idx) {
+            try { return Integer.parseInt(args[idx]); } catch (Exception ignored) {}
+        }
+        return def;
+    }
+
+    private static String getStringArg(String[] args, int idx, String def) {
+        if (args.length > idx) {
+            return args[idx];
+        }
+        return def;
+    }
+}
@@ -0,0 +1,124 @@
+package org.example;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Value encodings for in-memory ingest. Every codec takes packed RGB pixels ({@code 0xRRGGBB}, high byte ignored, row-major)
+ * and decodes back to a {@link BufferedImage} of type {@code TYPE_INT_RGB}.
+ */
+public enum ImageCodec {
+    /** Pixels as big-endian ints behind an 8-byte width/height header. */
+    RAW {
+        @Override
+        public byte[] encode(int[] pixels, int width, int height) {
+            return encodeRaw(pixels, width, height);
+        }
+
+        @Override
+        public BufferedImage decode(byte[] data) {
+            return decodeRaw(data);
+        }
+    },
+    /** RAW pixels compressed with the LZ4 fast compressor; header carries width/height. */
+    LZ4 {
+        @Override
+        public byte[] encode(int[] pixels, int width, int height) {
+            byte[] raw = encodeRaw(pixels, width, height);
+            int rawLen = raw.length - HEADER_BYTES;
+            byte[] out = new byte[HEADER_BYTES + LZ4_COMPRESSOR.maxCompressedLength(rawLen)];
+            System.arraycopy(raw, 0, out, 0, HEADER_BYTES);
+            int len = LZ4_COMPRESSOR.compress(raw, HEADER_BYTES, rawLen, out, HEADER_BYTES);
+            return Arrays.copyOf(out, HEADER_BYTES + len);
+        }
+
+        @Override
+        public BufferedImage decode(byte[] data) {
+            ByteBuffer header = ByteBuffer.wrap(data, 0, HEADER_BYTES);
+            int width = header.getInt();
+            int height = header.getInt();
+            byte[] raw = new byte[HEADER_BYTES + width * height * 4];
+            System.arraycopy(data, 0, raw, 0, HEADER_BYTES);
+            LZ4_DECOMPRESSOR.decompress(data, HEADER_BYTES, raw, HEADER_BYTES, width * height * 4);
+            return decodeRaw(raw);
+        }
+    },
+    /** The "Quite OK Image" format; see {@link QoiFormat}. */
+    QOI {
+        @Override
+        public byte[] encode(int[] pixels, int width, int height) {
+            return QoiFormat.encode(pixels, width, height);
+        }
+
+        @Override
+        public BufferedImage decode(byte[] data) {
+            int[] size = QoiFormat.readSize(data);
+            BufferedImage image = newImage(size[0], size[1]);
+            QoiFormat.decode(data, pixelsOf(image));
+            return image;
+        }
+    },
+    /** PNG through ImageIO, in memory; same codec as the file-based benchmarks. */
+    PNG {
+        @Override
+        public byte[] encode(int[] pixels, int width, int height) throws IOException {
+            BufferedImage image = newImage(width, height);
+            System.arraycopy(pixels, 0, pixelsOf(image), 0, width * height);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+
+        @Override
+        public BufferedImage decode(byte[] data) throws IOException {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+            if (image == null) throw new IOException("Not a PNG value");
+            return image;
+        }
+    };
+
+    private static final int HEADER_BYTES = 8;
+    private static final LZ4Compressor LZ4_COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor LZ4_DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    static {
+        // Keep ImageIO off the disk cache so PNG numbers are pure CPU
+        ImageIO.setUseCache(false);
+    }
+
+    public abstract byte[] encode(int[] pixels, int width, int height) throws IOException;
+
+    public abstract BufferedImage decode(byte[] data) throws IOException;
+
+    private static byte[] encodeRaw(int[] pixels, int width, int height) {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + width * height * 4);
+        buf.putInt(width).putInt(height);
+        buf.asIntBuffer().put(pixels, 0, width * height);
+        return buf.array();
+    }
+
+    private static BufferedImage decodeRaw(byte[] data) {
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        BufferedImage image = newImage(buf.getInt(), buf.getInt());
+        buf.asIntBuffer().get(pixelsOf(image));
+        return image;
+    }
+
+    private static BufferedImage newImage(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static int[] pixelsOf(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -4,6 +4,7 @@ import javax.imageio.ImageIO;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
 import java.util.Random;
@@ -15,21 +16,7 @@ public class ImageGenerator {
         }
         Random random = new Random(42);
         for (int i = 0; i < numImages; i++) {
-            BufferedImage image = new BufferedImage(pixelsPerSide, pixelsPerSide, BufferedImage.TYPE_INT_RGB);
-            Graphics2D g2d = image.createGraphics();
-            // Fill background with random color to avoid compressibility bias
-            g2d.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
-            g2d.fillRect(0, 0, pixelsPerSide, pixelsPerSide);
-            // Draw a few random rectangles
-            for (int r = 0; r < 10; r++) {
-                g2d.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
-                int w = 10 + random.nextInt(Math.max(1, pixelsPerSide - 10));
-                int h = 10 + random.nextInt(Math.max(1, pixelsPerSide - 10));
-                int x = random.nextInt(Math.max(1, pixelsPerSide - w));
-                int y = random.nextInt(Math.max(1, pixelsPerSide - h));
-                g2d.fillRect(x, y, w, h);
-            }
-            g2d.dispose();
+            BufferedImage image = drawImage(random, pixelsPerSide);
             File out = new File(outputDir, String.format("img_%06d.png", i));
             ImageIO.write(image, "png", out);
         }
@@ -43,19 +30,7 @@ public class ImageGenerator {
         int generated = 0;
         long batchStart = System.currentTimeMillis();
         for (int i = 0; i < numImages; i++) {
-            BufferedImage image = new BufferedImage(pixelsPerSide, pixelsPerSide, BufferedImage.TYPE_INT_RGB);
-            Graphics2D g2d = image.createGraphics();
-            g2d.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
-            g2d.fillRect(0, 0, pixelsPerSide, pixelsPerSide);
-            for (int r = 0; r < 10; r++) {
-                g2d.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
-                int w = 10 + random.nextInt(Math.max(1, pixelsPerSide - 10));
-                int h = 10 + random.nextInt(Math.max(1, pixelsPerSide - 10));
-                int x = random.nextInt(Math.max(1, pixelsPerSide - w));
-                int y = random.nextInt(Math.max(1, pixelsPerSide - h));
-                g2d.fillRect(x, y, w, h);
-            }
-            g2d.dispose();
+            BufferedImage image = drawImage(random, pixelsPerSide);
             File out = new File(outputDir, String.format("img_%06d.png", i));
             ImageIO.write(image, "png", out);
 
@@ -70,7 +45,33 @@ public class ImageGenerator {
             }
         }
     }
-}
-
 
+    /**
+     * Renders image {@code index} in memory and returns its packed RGB pixels (row-major, {@code 0xRRGGBB}).
+     * Each index has its own seed, so images can be produced in parallel and in any order. The seed is mixed
+     * because {@link Random}'s first draws barely differ for consecutive seeds.
+     */
+    public static int[] renderPixels(int index, int pixelsPerSide) {
+        BufferedImage image = drawImage(new Random(42L ^ (index * 0x9E3779B97F4A7C15L)), pixelsPerSide);
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
 
+    private static BufferedImage drawImage(Random random, int pixelsPerSide) {
+        BufferedImage image = new BufferedImage(pixelsPerSide, pixelsPerSide, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        // Fill background with random color to avoid compressibility bias
+        g2d.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+        g2d.fillRect(0, 0, pixelsPerSide, pixelsPerSide);
+        // Draw a few random rectangles
+        for (int r = 0; r < 10; r++) {
+            g2d.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            int w = 10 + random.nextInt(Math.max(1, pixelsPerSide - 10));
+            int h = 10 + random.nextInt(Math.max(1, pixelsPerSide - 10));
+            int x = random.nextInt(Math.max(1, pixelsPerSide - w));
+            int y = random.nextInt(Math.max(1, pixelsPerSide - h));
+            g2d.fillRect(x, y, w, h);
+        }
+        g2d.dispose();
+        return image;
+    }
+}
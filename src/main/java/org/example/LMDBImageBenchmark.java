@@ -4,6 +4,8 @@ import org.lmdbjava.Dbi;
 import org.lmdbjava.DbiFlags;
 import org.lmdbjava.Env;
 import org.lmdbjava.EnvFlags;
+import org.lmdbjava.PutFlags;
+import org.lmdbjava.Stat;
 import org.lmdbjava.Txn;
 
 import java.io.File;
@@ -40,6 +42,7 @@ public class LMDBImageBenchmark {
         String lmdbDirPath = getStringArg(args, 3, "./lmdbdata");
         int threads = getIntArg(args, 4, Math.max(2, Runtime.getRuntime().availableProcessors()));
         int batchSize = getIntArg(args, 5, 10000);
+        String loadMode = getStringArg(args, 6, "items"); // items | bulk | both
 
         File imagesDir = new File(imagesDirPath);
         if (!imagesDir.exists() || Objects.requireNonNull(imagesDir.listFiles()).length < numImages) {
@@ -50,53 +53,158 @@ public class LMDBImageBenchmark {
         File lmdbDir = new File(lmdbDirPath);
         if (!lmdbDir.exists()) lmdbDir.mkdirs();
 
-        try (Env<ByteBuffer> env = create()
+        try (ResourceSampler sampler = new ResourceSampler();
+             Env<ByteBuffer> env = create()
                 .setMapSize(10L * 1024 * 1024 * 1024) // 10GB
-                .setMaxDbs(1)
+                .setMaxDbs(2)
                 .open(lmdbDir)) {
 
-            Dbi<ByteBuffer> db = env.openDbi("images", DbiFlags.MDB_CREATE);
-
             List<File> files = listPngFiles(imagesDir, numImages);
 
-            ResultSummary write = runSequentialBatchesWithParallelItems(files, batchSize, threads, f -> {
-                byte[] bytes = Files.readAllBytes(f.toPath());
-                ByteBuffer key = ByteBuffer.allocateDirect(f.getName().getBytes(UTF_8).length);
-                key.put(f.getName().getBytes(UTF_8)).flip();
-                ByteBuffer val = ByteBuffer.allocateDirect(bytes.length);
-                val.put(bytes).flip();
+            List<String> dbNames = new ArrayList<>();
+            if (!"bulk".equals(loadMode)) {
+                Dbi<ByteBuffer> db = env.openDbi("images", DbiFlags.MDB_CREATE);
+                dbNames.add("images");
+                // Compare runs measure an initial load on both sides; otherwise puts would overwrite existing keys
                 try (Txn<ByteBuffer> txn = env.txnWrite()) {
-                    db.put(txn, key, val);
+                    if ("both".equals(loadMode)) {
+                        db.drop(txn);
+                    } else if (db.stat(txn).entries > 0) {
+                        System.out.println("LMDB note: images is not empty; per-item writes will overwrite existing keys");
+                    }
                     txn.commit();
                 }
-                return (long) bytes.length;
-            }, "lmdb-write");
-
-            System.out.printf("LMDB Write: items=%d, size=%.2f MB, time=%d ms%n", write.itemsProcessed, write.bytesProcessed / (1024.0 * 1024.0), write.millis);
-
-            ResultSummary read = runSequentialBatchesWithParallelItems(files, batchSize, threads, f -> {
-                ByteBuffer key = ByteBuffer.allocateDirect(f.getName().getBytes(UTF_8).length);
-                key.put(f.getName().getBytes(UTF_8)).flip();
-                try (Txn<ByteBuffer> txn = env.txnRead()) {
-                    ByteBuffer found = db.get(txn, key);
-                    if (found == null) return 0L;
-                    return (long) found.remaining();
+
+                ResultSummary write = runSequentialBatchesWithParallelItems(files, batchSize, threads, f -> {
+                    byte[] bytes = Files.readAllBytes(f.toPath());
+                    ByteBuffer key = ByteBuffer.allocateDirect(f.getName().getBytes(UTF_8).length);
+                    key.put(f.getName().getBytes(UTF_8)).flip();
+                    ByteBuffer val = ByteBuffer.allocateDirect(bytes.length);
+                    val.put(bytes).flip();
+                    try (Txn<ByteBuffer> txn = env.txnWrite()) {
+                        db.put(txn, key, val);
+                        txn.commit();
+                    }
+                    return (long) bytes.length;
+                }, "lmdb-write", sampler);
+
+                System.out.printf("LMDB Write: items=%d, size=%.2f MB, time=%d ms%n", write.itemsProcessed, write.bytesProcessed / (1024.0 * 1024.0), write.millis);
+                printLoadStats(env, db, files, "items", write);
+            }
+            if (!"items".equals(loadMode)) {
+                Dbi<ByteBuffer> db = env.openDbi("images_bulk", DbiFlags.MDB_CREATE);
+                dbNames.add("images_bulk");
+
+                ResultSummary load = bulkLoad(env, db, files, batchSize, threads, sampler);
+
+                System.out.printf("LMDB Bulk Load: items=%d, size=%.2f MB, time=%d ms%n", load.itemsProcessed, load.bytesProcessed / (1024.0 * 1024.0), load.millis);
+                printLoadStats(env, db, files, "bulk", load);
+            }
+
+            for (String dbName : dbNames) {
+                Dbi<ByteBuffer> db = env.openDbi(dbName);
+                ResultSummary read = runSequentialBatchesWithParallelItems(files, batchSize, threads, f -> {
+                    ByteBuffer key = ByteBuffer.allocateDirect(f.getName().getBytes(UTF_8).length);
+                    key.put(f.getName().getBytes(UTF_8)).flip();
+                    try (Txn<ByteBuffer> txn = env.txnRead()) {
+                        ByteBuffer found = db.get(txn, key);
+                        if (found == null) return 0L;
+                        return (long) found.remaining();
+                    }
+                }, "images_bulk".equals(dbName) ? "lmdb-read-bulk" : "lmdb-read", sampler);
+
+                System.out.printf("LMDB Read (%s): items=%d, size=%.2f MB, time=%d ms%n", dbName, read.itemsProcessed, read.bytesProcessed / (1024.0 * 1024.0), read.millis);
+            }
+            sampler.report();
+        }
+    }
+
+    /**
+     * Loads {@code files} into an emptied {@code db} in a single write txn with {@code MDB_APPEND}, so every
+     * put lands on the rightmost leaf and pages are filled completely instead of split. Files are read in
+     * parallel per batch; puts stay on the calling thread, which owns the write txn. Keys must be in LMDB
+     * byte order, which {@link #listPngFiles} provides for the generated {@code img_NNNNNN.png} names.
+     */
+    private static ResultSummary bulkLoad(Env<ByteBuffer> env, Dbi<ByteBuffer> db, List<File> files, int batchSize, int threads, ResourceSampler sampler) throws Exception {
+        List<List<File>> batches = partition(files, batchSize);
+        long totalBytes = 0L;
+        Instant globalStart = Instant.now();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (Txn<ByteBuffer> txn = env.txnWrite()) {
+            db.drop(txn);
+            ByteBuffer key = ByteBuffer.allocateDirect(env.getMaxKeySize());
+            ByteBuffer val = ByteBuffer.allocateDirect(0);
+            for (int i = 0; i < batches.size(); i++) {
+                List<File> batch = batches.get(i);
+                sampler.beginBatch("lmdb-bulk", i + 1);
+                long start = System.currentTimeMillis();
+                List<Callable<byte[]>> tasks = new ArrayList<>();
+                for (File f : batch) {
+                    tasks.add(() -> Files.readAllBytes(f.toPath()));
+                }
+                List<Future<byte[]>> futures = pool.invokeAll(tasks);
+                long bytes = 0L;
+                for (int j = 0; j < batch.size(); j++) {
+                    byte[] data = futures.get(j).get();
+                    if (val.capacity() < data.length) {
+                        val = ByteBuffer.allocateDirect(Math.max(data.length, val.capacity() * 2));
+                    }
+                    key.clear();
+                    key.put(batch.get(j).getName().getBytes(UTF_8)).flip();
+                    val.clear();
+                    val.put(data).flip();
+                    db.put(txn, key, val, PutFlags.MDB_APPEND);
+                    bytes += data.length;
+                }
+                long end = System.currentTimeMillis();
+                totalBytes += bytes;
+                ResourceSampler.Segment resources = sampler.endBatch(batch.size(), bytes);
+                synchronized (System.out) {
+                    System.out.printf("%s batch #%d finished by %s: items=%d, start=%d, end=%d, time=%d ms, %s%n",
+                            "lmdb-bulk", i + 1, Thread.currentThread().getName(), batch.size(), start, end, (end - start), resources.summary());
+                    System.out.flush();
                 }
-            }, "lmdb-read");
+            }
+            // Dirty pages are written at commit, so it counts towards the bulk phase
+            sampler.beginBatch("lmdb-bulk", batches.size() + 1);
+            txn.commit();
+            ResourceSampler.Segment resources = sampler.endBatch(0, 0);
+            System.out.printf("%s commit finished by %s: time=%d ms, %s%n",
+                    "lmdb-bulk", Thread.currentThread().getName(), resources.wallNanos / 1_000_000, resources.summary());
+        } finally {
+            pool.shutdown();
+        }
+        long millis = Duration.between(globalStart, Instant.now()).toMillis();
+        return new ResultSummary(totalBytes, files.size(), millis);
+    }
 
-            System.out.printf("LMDB Read: items=%d, size=%.2f MB, time=%d ms%n", read.itemsProcessed, read.bytesProcessed / (1024.0 * 1024.0), read.millis);
+    private static void printLoadStats(Env<ByteBuffer> env, Dbi<ByteBuffer> db, List<File> files, String mode, ResultSummary load) {
+        Stat stat;
+        try (Txn<ByteBuffer> txn = env.txnRead()) {
+            stat = db.stat(txn);
         }
+        long pages = stat.branchPages + stat.leafPages + stat.overflowPages;
+        long dbBytes = pages * stat.pageSize;
+        long keyBytes = 0L;
+        for (File f : files) keyBytes += f.getName().getBytes(UTF_8).length;
+        double fill = dbBytes == 0 ? 0.0 : (double) (load.bytesProcessed + keyBytes) / dbBytes;
+        long envUsedBytes = (env.info().lastPageNumber + 1) * stat.pageSize;
+        System.out.printf(
+                "LMDB load stats (%s): time=%d ms, entries=%d, depth=%d, pages=%d (branch=%d, leaf=%d, overflow=%d), db=%.2f MB, fill=%.1f%%, env used=%.2f MB%n",
+                mode, load.millis, stat.entries, stat.depth, pages, stat.branchPages, stat.leafPages, stat.overflowPages,
+                dbBytes / (1024.0 * 1024.0), fill * 100.0, envUsedBytes / (1024.0 * 1024.0));
     }
 
     private interface FileJob { long apply(File file) throws Exception; }
 
-    private static ResultSummary runSequentialBatchesWithParallelItems(List<File> files, int batchSize, int threads, FileJob perItemJob, String opName) throws InterruptedException, ExecutionException {
+    private static ResultSummary runSequentialBatchesWithParallelItems(List<File> files, int batchSize, int threads, FileJob perItemJob, String opName, ResourceSampler sampler) throws InterruptedException, ExecutionException {
         List<List<File>> batches = partition(files, batchSize);
         long totalBytes = 0L;
         Instant globalStart = Instant.now();
         long totalItems = files.size();
         for (int i = 0; i < batches.size(); i++) {
             List<File> batch = batches.get(i);
+            sampler.beginBatch(opName, i + 1);
             long start = System.currentTimeMillis();
             ExecutorService pool = Executors.newFixedThreadPool(threads);
             List<Callable<Long>> tasks = new ArrayList<>();
@@ -111,9 +219,10 @@ public class LMDBImageBenchmark {
             }
             long end = System.currentTimeMillis();
             totalBytes += bytes;
+            ResourceSampler.Segment resources = sampler.endBatch(batch.size(), bytes);
             synchronized (System.out) {
-                System.out.printf("%s batch #%d finished by %s: items=%d, start=%d, end=%d, time=%d ms%n",
-                        opName, i + 1, Thread.currentThread().getName(), batch.size(), start, end, (end - start));
+                System.out.printf("%s batch #%d finished by %s: items=%d, start=%d, end=%d, time=%d ms, %s%n",
+                        opName, i + 1, Thread.currentThread().getName(), batch.size(), start, end, (end - start), resources.summary());
                 System.out.flush();
             }
         }
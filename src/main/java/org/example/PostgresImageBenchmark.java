@@ -2,12 +2,17 @@ package org.example;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Duration;
 import java.time.Instant;
@@ -17,6 +22,8 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.*;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 public class PostgresImageBenchmark {
     public static class ResultSummary {
         public final long bytesProcessed;
@@ -30,6 +37,8 @@ public class PostgresImageBenchmark {
         }
     }
 
+    private static final byte[] PGCOPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+
     public static void main(String[] args) throws Exception {
         int numImages = getIntArg(args, 0, 100000);
         int pixelsPerSide = getIntArg(args, 1, 128);
@@ -39,6 +48,7 @@ public class PostgresImageBenchmark {
         String pass = getStringArg(args, 5, "bench");
         int threads = getIntArg(args, 6, Math.max(2, Runtime.getRuntime().availableProcessors() * 2));
         int batchSize = getIntArg(args, 7, 10000);
+        String loadMode = getStringArg(args, 8, "items"); // items | bulk | both
 
         File imagesDir = new File(imagesDirPath);
         if (!imagesDir.exists() || Objects.requireNonNull(imagesDir.listFiles()).length < numImages) {
@@ -52,7 +62,7 @@ public class PostgresImageBenchmark {
         cfg.setPassword(pass);
         cfg.setMaximumPoolSize(Math.max(threads, 8));
         cfg.setAutoCommit(false);
-        try (HikariDataSource ds = new HikariDataSource(cfg)) {
+        try (ResourceSampler sampler = new ResourceSampler(); HikariDataSource ds = new HikariDataSource(cfg)) {
             try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
                 st.executeUpdate("CREATE TABLE IF NOT EXISTS images (id TEXT PRIMARY KEY, data BYTEA)");
                 c.commit();
@@ -60,45 +70,234 @@ public class PostgresImageBenchmark {
 
             List<File> files = listPngFiles(imagesDir, numImages);
 
-            ResultSummary write = runSequentialBatchesWithParallelItems(files, batchSize, threads, f -> {
-                byte[] bytes = Files.readAllBytes(f.toPath());
-                try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement("INSERT INTO images (id, data) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET data = EXCLUDED.data")) {
-                    ps.setString(1, f.getName());
-                    ps.setBytes(2, bytes);
-                    ps.executeUpdate();
+            List<String> tables = new ArrayList<>();
+            if (!"bulk".equals(loadMode)) {
+                tables.add("images");
+                // Compare runs measure an initial load on both sides; otherwise upserts would hit existing rows
+                try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+                    if ("both".equals(loadMode)) {
+                        st.executeUpdate("TRUNCATE images");
+                    } else {
+                        try (ResultSet rs = st.executeQuery("SELECT EXISTS (SELECT 1 FROM images)")) {
+                            rs.next();
+                            if (rs.getBoolean(1)) {
+                                System.out.println("PG note: images is not empty; per-row writes will upsert existing rows");
+                            }
+                        }
+                    }
                     c.commit();
                 }
-                return (long) bytes.length;
-            }, "pg-write");
-
-            System.out.printf("PG Write: items=%d, size=%.2f MB, time=%d ms%n", write.itemsProcessed, write.bytesProcessed / (1024.0 * 1024.0), write.millis);
-
-            ResultSummary read = runSequentialBatchesWithParallelItems(files, batchSize, threads, f -> {
-                try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement("SELECT data FROM images WHERE id = ?")) {
-                    ps.setString(1, f.getName());
-                    try (ResultSet rs = ps.executeQuery()) {
-                        if (rs.next()) {
-                            byte[] data = rs.getBytes(1);
-                            return (long) data.length;
+
+                ResultSummary write = runSequentialBatchesWithParallelItems(files, batchSize, threads, f -> {
+                    byte[] bytes = Files.readAllBytes(f.toPath());
+                    try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement("INSERT INTO images (id, data) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET data = EXCLUDED.data")) {
+                        ps.setString(1, f.getName());
+                        ps.setBytes(2, bytes);
+                        ps.executeUpdate();
+                        c.commit();
+                    }
+                    return (long) bytes.length;
+                }, "pg-write", sampler);
+
+                System.out.printf("PG Write: items=%d, size=%.2f MB, time=%d ms%n", write.itemsProcessed, write.bytesProcessed / (1024.0 * 1024.0), write.millis);
+                printLoadStats(ds, "images", "items", write);
+            }
+            if (!"items".equals(loadMode)) {
+                // Compare runs keep the per-row table intact and load next to it
+                String table = "bulk".equals(loadMode) ? "images" : "images_bulk";
+                tables.add(table);
+
+                ResultSummary load = bulkLoad(ds, table, files, batchSize, threads, sampler);
+
+                System.out.printf("PG Bulk Load: items=%d, size=%.2f MB, time=%d ms%n", load.itemsProcessed, load.bytesProcessed / (1024.0 * 1024.0), load.millis);
+                printLoadStats(ds, table, "bulk", load);
+            }
+
+            for (String table : tables) {
+                ResultSummary read = runSequentialBatchesWithParallelItems(files, batchSize, threads, f -> {
+                    try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement("SELECT data FROM " + table + " WHERE id = ?")) {
+                        ps.setString(1, f.getName());
+                        try (ResultSet rs = ps.executeQuery()) {
+                            if (rs.next()) {
+                                byte[] data = rs.getBytes(1);
+                                return (long) data.length;
+                            }
+                        }
+                    }
+                    return 0L;
+                }, "images_bulk".equals(table) ? "pg-read-bulk" : "pg-read", sampler);
+
+                System.out.printf("PG Read (%s): items=%d, size=%.2f MB, time=%d ms%n", table, read.itemsProcessed, read.bytesProcessed / (1024.0 * 1024.0), read.millis);
+            }
+            sampler.report();
+        }
+    }
+
+    /**
+     * Replaces {@code table} in one transaction: binary COPY of the presorted files into an index-less
+     * staging table, a single primary-key build, then drop-and-rename. Files are read in parallel per
+     * batch; the COPY stream stays on the calling thread so rows land in key order.
+     */
+    private static ResultSummary bulkLoad(HikariDataSource ds, String table, List<File> files, int batchSize, int threads, ResourceSampler sampler) throws Exception {
+        String staging = table + "_staging";
+        List<List<File>> batches = partition(files, batchSize);
+        long totalBytes = 0L;
+        Instant globalStart = Instant.now();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (Connection c = ds.getConnection()) {
+            try (Statement st = c.createStatement()) {
+                st.executeUpdate("DROP TABLE IF EXISTS " + staging);
+                st.executeUpdate("CREATE TABLE " + staging + " (id TEXT, data BYTEA)");
+            }
+
+            CopyIn copy = c.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY " + staging + " (id, data) FROM STDIN WITH (FORMAT binary)");
+            try {
+                ByteArrayOutputStream buf = new ByteArrayOutputStream(1 << 20);
+                DataOutputStream out = new DataOutputStream(buf);
+                out.write(PGCOPY_SIGNATURE);
+                out.writeInt(0); // flags
+                out.writeInt(0); // header extension length
+                for (int i = 0; i < batches.size(); i++) {
+                    List<File> batch = batches.get(i);
+                    sampler.beginBatch("pg-copy", i + 1);
+                    long start = System.currentTimeMillis();
+                    List<Callable<byte[]>> tasks = new ArrayList<>();
+                    for (File f : batch) {
+                        tasks.add(() -> Files.readAllBytes(f.toPath()));
+                    }
+                    List<Future<byte[]>> futures = pool.invokeAll(tasks);
+                    long bytes = 0L;
+                    for (int j = 0; j < batch.size(); j++) {
+                        byte[] id = batch.get(j).getName().getBytes(UTF_8);
+                        byte[] data = futures.get(j).get();
+                        out.writeShort(2);
+                        out.writeInt(id.length);
+                        out.write(id);
+                        out.writeInt(data.length);
+                        out.write(data);
+                        if (buf.size() >= (1 << 20)) {
+                            copy.writeToCopy(buf.toByteArray(), 0, buf.size());
+                            buf.reset();
                         }
+                        bytes += data.length;
+                    }
+                    long end = System.currentTimeMillis();
+                    totalBytes += bytes;
+                    ResourceSampler.Segment resources = sampler.endBatch(batch.size(), bytes);
+                    synchronized (System.out) {
+                        System.out.printf("%s batch #%d finished by %s: items=%d, start=%d, end=%d, time=%d ms, %s%n",
+                                "pg-copy", i + 1, Thread.currentThread().getName(), batch.size(), start, end, (end - start), resources.summary());
+                        System.out.flush();
                     }
                 }
-                return 0L;
-            }, "pg-read");
+                // endCopy waits for the server to finish the COPY, so it counts towards the bulk phase
+                sampler.beginBatch("pg-copy", batches.size() + 1);
+                out.writeShort(-1);
+                copy.writeToCopy(buf.toByteArray(), 0, buf.size());
+                copy.endCopy();
+                ResourceSampler.Segment resources = sampler.endBatch(0, 0);
+                System.out.printf("%s endCopy finished by %s: time=%d ms, %s%n",
+                        "pg-copy", Thread.currentThread().getName(), resources.wallNanos / 1_000_000, resources.summary());
+            } finally {
+                if (copy.isActive()) copy.cancelCopy();
+            }
+            long copyMillis = Duration.between(globalStart, Instant.now()).toMillis();
+
+            Instant indexStart = Instant.now();
+            sampler.beginBatch("pg-copy", batches.size() + 2);
+            try (Statement st = c.createStatement()) {
+                st.execute("SET LOCAL maintenance_work_mem = '512MB'");
+                st.executeUpdate("ALTER TABLE " + staging + " ADD CONSTRAINT " + staging + "_pkey PRIMARY KEY (id)");
+            }
+            ResourceSampler.Segment indexResources = sampler.endBatch(0, 0);
+            long indexMillis = Duration.between(indexStart, Instant.now()).toMillis();
+            System.out.printf("%s index build finished by %s: time=%d ms, %s%n",
+                    "pg-copy", Thread.currentThread().getName(), indexMillis, indexResources.summary());
+
+            Instant swapStart = Instant.now();
+            sampler.beginBatch("pg-copy", batches.size() + 3);
+            try (Statement st = c.createStatement()) {
+                st.executeUpdate("DROP TABLE IF EXISTS " + table);
+                st.executeUpdate("ALTER TABLE " + staging + " RENAME TO " + table);
+                st.executeUpdate("ALTER INDEX " + staging + "_pkey RENAME TO " + table + "_pkey");
+                st.executeUpdate("ANALYZE " + table);
+            }
+            c.commit();
+            ResourceSampler.Segment swapResources = sampler.endBatch(0, 0);
+            long swapMillis = Duration.between(swapStart, Instant.now()).toMillis();
+            System.out.printf("%s swap+analyze finished by %s: time=%d ms, %s%n",
+                    "pg-copy", Thread.currentThread().getName(), swapMillis, swapResources.summary());
+
+            System.out.printf("PG Bulk Load phases: copy=%d ms, index=%d ms, swap+analyze=%d ms%n", copyMillis, indexMillis, swapMillis);
+        } finally {
+            pool.shutdown();
+        }
+        long millis = Duration.between(globalStart, Instant.now()).toMillis();
+        return new ResultSummary(totalBytes, files.size(), millis);
+    }
 
-            System.out.printf("PG Read: items=%d, size=%.2f MB, time=%d ms%n", read.itemsProcessed, read.bytesProcessed / (1024.0 * 1024.0), read.millis);
+    private static void printLoadStats(HikariDataSource ds, String table, String mode, ResultSummary load) throws Exception {
+        try (Connection c = ds.getConnection()) {
+            long heapBytes, indexBytes, totalBytes, toastBytes;
+            // TOAST is queried directly; the remainder (FSM/VM forks of the heap) is reported as "other"
+            try (PreparedStatement ps = c.prepareStatement(
+                    "SELECT pg_relation_size(c.oid), pg_indexes_size(c.oid), pg_total_relation_size(c.oid), " +
+                    "CASE WHEN c.reltoastrelid = 0 THEN 0 ELSE pg_total_relation_size(c.reltoastrelid) END " +
+                    "FROM pg_class c WHERE c.oid = ?::regclass")) {
+                ps.setString(1, table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    heapBytes = rs.getLong(1);
+                    indexBytes = rs.getLong(2);
+                    totalBytes = rs.getLong(3);
+                    toastBytes = rs.getLong(4);
+                }
+            }
+            c.commit();
+            // Heap fill and leaf density need the pgstattuple extension; report n/a when it is not installed
+            String heapFill;
+            try (PreparedStatement ps = c.prepareStatement("SELECT tuple_percent, free_percent FROM pgstattuple(?::regclass)")) {
+                ps.setString(1, table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    heapFill = String.format("%.1f%% (free %.1f%%)", rs.getDouble(1), rs.getDouble(2));
+                }
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                heapFill = "n/a";
+            }
+            String leafDensity;
+            try (PreparedStatement ps = c.prepareStatement("SELECT avg_leaf_density FROM pgstatindex(?)")) {
+                ps.setString(1, table + "_pkey");
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    leafDensity = String.format("%.1f%%", rs.getDouble(1));
+                }
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                leafDensity = "n/a";
+            }
+            System.out.printf(
+                    "PG load stats (%s): time=%d ms, table=%s, total=%.2f MB (heap=%.2f MB, toast=%.2f MB, index=%.2f MB, other=%.2f MB), heap fill=%s, index leaf density=%s%n",
+                    mode, load.millis, table, totalBytes / (1024.0 * 1024.0), heapBytes / (1024.0 * 1024.0),
+                    toastBytes / (1024.0 * 1024.0), indexBytes / (1024.0 * 1024.0),
+                    (totalBytes - heapBytes - toastBytes - indexBytes) / (1024.0 * 1024.0), heapFill, leafDensity);
         }
     }
 
     private interface FileJob { long apply(File file) throws Exception; }
 
-    private static ResultSummary runSequentialBatchesWithParallelItems(List<File> files, int batchSize, int threads, FileJob perItemJob, String opName) throws InterruptedException, ExecutionException {
+    private static ResultSummary runSequentialBatchesWithParallelItems(List<File> files, int batchSize, int threads, FileJob perItemJob, String opName, ResourceSampler sampler) throws InterruptedException, ExecutionException {
         List<List<File>> batches = partition(files, batchSize);
         long totalBytes = 0L;
         Instant globalStart = Instant.now();
         long totalItems = files.size();
         for (int i = 0; i < batches.size(); i++) {
             List<File> batch = batches.get(i);
+            sampler.beginBatch(opName, i + 1);
             long start = System.currentTimeMillis();
             ExecutorService pool = Executors.newFixedThreadPool(threads);
             List<Callable<Long>> tasks = new ArrayList<>();
@@ -113,9 +312,10 @@ public class PostgresImageBenchmark {
             }
             long end = System.currentTimeMillis();
             totalBytes += bytes;
+            ResourceSampler.Segment resources = sampler.endBatch(batch.size(), bytes);
             synchronized (System.out) {
-                System.out.printf("%s batch #%d finished by %s: items=%d, start=%d, end=%d, time=%d ms%n",
-                        opName, i + 1, Thread.currentThread().getName(), batch.size(), start, end, (end - start));
+                System.out.printf("%s batch #%d finished by %s: items=%d, start=%d, end=%d, time=%d ms, %s%n",
+                        opName, i + 1, Thread.currentThread().getName(), batch.size(), start, end, (end - start), resources.summary());
                 System.out.flush();
             }
         }
@@ -0,0 +1,151 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Minimal QOI ("Quite OK Image", qoiformat.org) encoder/decoder for opaque RGB pixels.
+ * Pixels are packed {@code 0xRRGGBB} (high byte ignored); alpha is always written as 255.
+ */
+final class QoiFormat {
+    private static final int HEADER_BYTES = 14;
+    private static final int END_MARKER_BYTES = 8;
+
+    private static final int OP_INDEX = 0x00;
+    private static final int OP_DIFF = 0x40;
+    private static final int OP_LUMA = 0x80;
+    private static final int OP_RUN = 0xc0;
+    private static final int OP_RGB = 0xfe;
+    private static final int OP_RGBA = 0xff;
+    private static final int MASK_2 = 0xc0;
+
+    private QoiFormat() {}
+
+    static byte[] encode(int[] pixels, int width, int height) {
+        int count = width * height;
+        // Worst case: every pixel as OP_RGB (4 bytes)
+        byte[] out = new byte[HEADER_BYTES + count * 4 + END_MARKER_BYTES];
+        int p = 0;
+        out[p++] = 'q';
+        out[p++] = 'o';
+        out[p++] = 'i';
+        out[p++] = 'f';
+        p = putInt(out, p, width);
+        p = putInt(out, p, height);
+        out[p++] = 3; // channels: RGB
+        out[p++] = 0; // colorspace: sRGB with linear alpha
+
+        int[] index = new int[64];
+        int prev = 0xff000000;
+        int run = 0;
+        for (int i = 0; i < count; i++) {
+            int px = pixels[i] | 0xff000000;
+            if (px == prev) {
+                run++;
+                if (run == 62 || i == count - 1) {
+                    out[p++] = (byte) (OP_RUN | (run - 1));
+                    run = 0;
+                }
+                continue;
+            }
+            if (run > 0) {
+                out[p++] = (byte) (OP_RUN | (run - 1));
+                run = 0;
+            }
+            int slot = hash(px);
+            if (index[slot] == px) {
+                out[p++] = (byte) (OP_INDEX | slot);
+            } else {
+                index[slot] = px;
+                int vr = (byte) (((px >> 16) & 0xff) - ((prev >> 16) & 0xff));
+                int vg = (byte) (((px >> 8) & 0xff) - ((prev >> 8) & 0xff));
+                int vb = (byte) ((px & 0xff) - (prev & 0xff));
+                int vgr = vr - vg;
+                int vgb = vb - vg;
+                if (vr > -3 && vr < 2 && vg > -3 && vg < 2 && vb > -3 && vb < 2) {
+                    out[p++] = (byte) (OP_DIFF | (vr + 2) << 4 | (vg + 2) << 2 | (vb + 2));
+                } else if (vgr > -9 && vgr < 8 && vg > -33 && vg < 32 && vgb > -9 && vgb < 8) {
+                    out[p++] = (byte) (OP_LUMA | (vg + 32));
+                    out[p++] = (byte) ((vgr + 8) << 4 | (vgb + 8));
+                } else {
+                    out[p++] = (byte) OP_RGB;
+                    out[p++] = (byte) (px >> 16);
+                    out[p++] = (byte) (px >> 8);
+                    out[p++] = (byte) px;
+                }
+            }
+            prev = px;
+        }
+        p += END_MARKER_BYTES - 1;
+        out[p++] = 1;
+        return Arrays.copyOf(out, p);
+    }
+
+    /** Returns {@code {width, height}} from the header. */
+    static int[] readSize(byte[] data) {
+        if (data.length < HEADER_BYTES || data[0] != 'q' || data[1] != 'o' || data[2] != 'i' || data[3] != 'f') {
+            throw new IllegalArgumentException("Not a QOI value");
+        }
+        return new int[]{getInt(data, 4), getInt(data, 8)};
+    }
+
+    /** Decodes into {@code pixels}, which must hold width*height entries. */
+    static void decode(byte[] data, int[] pixels) {
+        int[] index = new int[64];
+        int px = 0xff000000;
+        int run = 0;
+        int p = HEADER_BYTES;
+        int chunksEnd = data.length - END_MARKER_BYTES;
+        for (int i = 0; i < pixels.length; i++) {
+            if (run > 0) {
+                run--;
+            } else if (p < chunksEnd) {
+                int b1 = data[p++] & 0xff;
+                if (b1 == OP_RGB) {
+                    px = 0xff000000 | (data[p] & 0xff) << 16 | (data[p + 1] & 0xff) << 8 | (data[p + 2] & 0xff);
+                    p += 3;
+                } else if (b1 == OP_RGBA) {
+                    px = (data[p + 3] & 0xff) << 24 | (data[p] & 0xff) << 16 | (data[p + 1] & 0xff) << 8 | (data[p + 2] & 0xff);
+                    p += 4;
+                } else if ((b1 & MASK_2) == OP_INDEX) {
+                    px = index[b1];
+                } else if ((b1 & MASK_2) == OP_DIFF) {
+                    int r = ((px >> 16) + ((b1 >> 4) & 0x03) - 2) & 0xff;
+                    int g = ((px >> 8) + ((b1 >> 2) & 0x03) - 2) & 0xff;
+                    int b = (px + (b1 & 0x03) - 2) & 0xff;
+                    px = (px & 0xff000000) | r << 16 | g << 8 | b;
+                } else if ((b1 & MASK_2) == OP_LUMA) {
+                    int b2 = data[p++] & 0xff;
+                    int vg = (b1 & 0x3f) - 32;
+                    int r = ((px >> 16) + vg - 8 + ((b2 >> 4) & 0x0f)) & 0xff;
+                    int g = ((px >> 8) + vg) & 0xff;
+                    int b = (px + vg - 8 + (b2 & 0x0f)) & 0xff;
+                    px = (px & 0xff000000) | r << 16 | g << 8 | b;
+                } else {
+                    run = b1 & 0x3f;
+                }
+                index[hash(px)] = px;
+            }
+            pixels[i] = px & 0x00ffffff;
+        }
+    }
+
+    private static int hash(int px) {
+        int a = (px >>> 24) & 0xff;
+        int r = (px >> 16) & 0xff;
+        int g = (px >> 8) & 0xff;
+        int b = px & 0xff;
+        return (r * 3 + g * 5 + b * 7 + a * 11) % 64;
+    }
+
+    private static int putInt(byte[] out, int p, int v) {
+        out[p] = (byte) (v >>> 24);
+        out[p + 1] = (byte) (v >>> 16);
+        out[p + 2] = (byte) (v >>> 8);
+        out[p + 3] = (byte) v;
+        return p + 4;
+    }
+
+    private static int getInt(byte[] data, int p) {
+        return (data[p] & 0xff) << 24 | (data[p + 1] & 0xff) << 16 | (data[p + 2] & 0xff) << 8 | (data[p + 3] & 0xff);
+    }
+}
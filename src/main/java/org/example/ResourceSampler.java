@@ -0,0 +1,377 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples process resource usage in the background and attributes it to the current phase and batch.
+ *
+ * <p>Counters: process CPU time, GC count/time per collector, bytes allocated by all threads, heap and
+ * direct/mapped buffer pool usage, and {@code /proc/self/io} (Linux only; zeros elsewhere). Batch boundaries
+ * ({@link #beginBatch}/{@link #endBatch}) take an exact snapshot, so per-batch and per-phase deltas are not
+ * subject to the sampling interval; the periodic samples add gauge peaks and, when a CSV file is given, are
+ * streamed there as a timeline. Samples are not kept in memory.
+ *
+ * <p>Disk I/O is this process only: for LMDB it includes the engine's page writes, for Postgres and TiKV it
+ * covers just the client side.
+ */
+public class ResourceSampler implements AutoCloseable {
+    private static final Path PROC_SELF_IO = Path.of("/proc/self/io");
+    private static final String IDLE = "idle";
+
+    private final com.sun.management.OperatingSystemMXBean os;
+    private final com.sun.management.ThreadMXBean threads;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final List<BufferPoolMXBean> bufferPools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+    private final int cpuCores = Runtime.getRuntime().availableProcessors();
+    private final ScheduledExecutorService scheduler;
+
+    private final File csvFile;
+    private final PrintWriter csv;
+    private final Map<String, Segment> phaseTotals = new LinkedHashMap<>();
+    private String phase = IDLE;
+    private int batchNo;
+    private Snapshot segmentStart;
+    private long segmentPeakHeap;
+    private long segmentPeakDirect;
+
+    /** Interval from {@code -Dbench.sampleIntervalMs} (default 200), CSV file from {@code -Dbench.samplesCsv} (default none). */
+    public ResourceSampler() throws IOException {
+        this(Long.getLong("bench.sampleIntervalMs", 200L), csvFileProperty());
+    }
+
+    /** {@code csvFile} may be null to only keep segment totals. */
+    public ResourceSampler(long intervalMillis, File csvFile) throws IOException {
+        this.csvFile = csvFile;
+        this.csv = csvFile == null ? null : new PrintWriter(Files.newBufferedWriter(csvFile.toPath()));
+        this.os = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        if (csv != null) writeCsvHeader();
+        this.segmentStart = snapshot();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "resource-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::sample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Starts attributing resource usage to {@code phase}/{@code batchNo}; time spent between batches is not counted. */
+    public synchronized void beginBatch(String phase, int batchNo) {
+        segmentStart = snapshot();
+        segmentPeakHeap = segmentStart.heapUsedBytes;
+        segmentPeakDirect = segmentStart.directUsedBytes;
+        this.phase = phase;
+        this.batchNo = batchNo;
+    }
+
+    /**
+     * Closes the running batch, folds it into its phase totals and returns it.
+     * {@code logicalBytes} is the payload the batch moved (value bytes written or read).
+     */
+    public synchronized Segment endBatch(long items, long logicalBytes) {
+        Snapshot end = snapshot();
+        Segment segment = new Segment(phase, batchNo, cpuCores, segmentStart, end, segmentPeakHeap, segmentPeakDirect, items, logicalBytes);
+        phaseTotals.merge(phase, segment, Segment::plus);
+        phase = IDLE;
+        batchNo = 0;
+        segmentStart = end;
+        return segment;
+    }
+
+    /** Prints per-phase totals and where the periodic samples went, if anywhere. */
+    public synchronized void report() {
+        printSummary();
+        if (csv != null) {
+            csv.flush();
+            System.out.println("Resource samples written to " + csvFile.getAbsolutePath());
+        }
+    }
+
+    public synchronized void printSummary() {
+        for (Segment total : phaseTotals.values()) {
+            System.out.printf("Resources %s: %s%n", total.phase, total.summary());
+            System.out.printf("Resources %s: gc by collector: %s%n", total.phase, total.gcByCollector());
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (csv != null) csv.close();
+        }
+    }
+
+    private synchronized void sample() {
+        Snapshot s = snapshot();
+        segmentPeakHeap = Math.max(segmentPeakHeap, s.heapUsedBytes);
+        segmentPeakDirect = Math.max(segmentPeakDirect, s.directUsedBytes);
+        if (csv != null) writeCsvRow(System.currentTimeMillis(), s);
+    }
+
+    private void writeCsvHeader() {
+        StringBuilder header = new StringBuilder("epoch_ms,phase,batch_no,cpu_ns,gc_count,gc_ms,allocated_bytes,heap_used_bytes,direct_used_bytes,mapped_used_bytes,io_read_bytes,io_write_bytes,io_rchar,io_wchar");
+        for (GarbageCollectorMXBean gc : collectors) {
+            String name = gc.getName().replaceAll("[^A-Za-z0-9]+", "_");
+            header.append(",gc_").append(name).append("_count,gc_").append(name).append("_ms");
+        }
+        csv.println(header);
+    }
+
+    /** One periodic sample (absolute counters) with the phase and batch it was taken in. */
+    private void writeCsvRow(long epochMillis, Snapshot v) {
+        StringBuilder row = new StringBuilder();
+        row.append(epochMillis).append(',').append(phase).append(',').append(batchNo)
+                .append(',').append(v.cpuNanos).append(',').append(v.gcCount()).append(',').append(v.gcMillis())
+                .append(',').append(v.allocatedBytes).append(',').append(v.heapUsedBytes)
+                .append(',').append(v.directUsedBytes).append(',').append(v.mappedUsedBytes)
+                .append(',').append(v.ioReadBytes).append(',').append(v.ioWriteBytes)
+                .append(',').append(v.ioRchar).append(',').append(v.ioWchar);
+        for (int i = 0; i < v.gcCounts.length; i++) {
+            row.append(',').append(v.gcCounts[i]).append(',').append(v.gcTimes[i]);
+        }
+        csv.println(row);
+    }
+
+    private static File csvFileProperty() {
+        String path = System.getProperty("bench.samplesCsv");
+        return path == null || path.isBlank() ? null : new File(path);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot s = new Snapshot();
+        s.nanoTime = System.nanoTime();
+        s.cpuNanos = os.getProcessCpuTime();
+        s.gcNames = new String[collectors.size()];
+        s.gcCounts = new long[collectors.size()];
+        s.gcTimes = new long[collectors.size()];
+        for (int i = 0; i < collectors.size(); i++) {
+            GarbageCollectorMXBean gc = collectors.get(i);
+            s.gcNames[i] = gc.getName();
+            s.gcCounts[i] = Math.max(0, gc.getCollectionCount());
+            s.gcTimes[i] = Math.max(0, gc.getCollectionTime());
+        }
+        s.allocatedBytes = threads.isThreadAllocatedMemoryEnabled() ? threads.getTotalThreadAllocatedBytes() : 0L;
+        s.heapUsedBytes = memory.getHeapMemoryUsage().getUsed();
+        for (BufferPoolMXBean pool : bufferPools) {
+            if ("direct".equals(pool.getName())) s.directUsedBytes = pool.getMemoryUsed();
+            else if ("mapped".equals(pool.getName())) s.mappedUsedBytes = pool.getMemoryUsed();
+        }
+        readProcSelfIo(s);
+        return s;
+    }
+
+    private static void readProcSelfIo(Snapshot s) {
+        if (!Files.isReadable(PROC_SELF_IO)) return;
+        try {
+            for (String line : Files.readAllLines(PROC_SELF_IO)) {
+                int colon = line.indexOf(':');
+                if (colon < 0) continue;
+                long value = Long.parseLong(line.substring(colon + 1).trim());
+                switch (line.substring(0, colon)) {
+                    case "rchar" -> s.ioRchar = value;
+                    case "wchar" -> s.ioWchar = value;
+                    case "read_bytes" -> s.ioReadBytes = value;
+                    case "write_bytes" -> s.ioWriteBytes = value;
+                    default -> { }
+                }
+            }
+        } catch (Exception ignored) {}
+    }
+
+    private static class Snapshot {
+        long nanoTime;
+        long cpuNanos;
+        String[] gcNames;
+        long[] gcCounts;
+        long[] gcTimes;
+        long allocatedBytes;
+        long heapUsedBytes;
+        long directUsedBytes;
+        long mappedUsedBytes;
+        long ioReadBytes;
+        long ioWriteBytes;
+        long ioRchar;
+        long ioWchar;
+
+        long gcCount() {
+            long sum = 0L;
+            for (long c : gcCounts) sum += c;
+            return sum;
+        }
+
+        long gcMillis() {
+            long sum = 0L;
+            for (long t : gcTimes) sum += t;
+            return sum;
+        }
+    }
+
+    /** Resource deltas for one batch, or the sum of a phase's batches. */
+    public static class Segment {
+        public final String phase;
+        public final int batchNo;
+        public final int cpuCores;
+        public final long wallNanos;
+        public final long cpuNanos;
+        public final String[] gcNames;
+        public final long[] gcCounts;
+        public final long[] gcMillis;
+        public final long allocatedBytes;
+        public final long ioReadBytes;
+        public final long ioWriteBytes;
+        public final long peakHeapBytes;
+        public final long peakDirectBytes;
+        public final long items;
+        public final long logicalBytes;
+
+        private Segment(String phase, int batchNo, int cpuCores, long wallNanos, long cpuNanos, String[] gcNames,
+                        long[] gcCounts, long[] gcMillis, long allocatedBytes, long ioReadBytes, long ioWriteBytes,
+                        long peakHeapBytes, long peakDirectBytes, long items, long logicalBytes) {
+            this.phase = phase;
+            this.batchNo = batchNo;
+            this.cpuCores = cpuCores;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.gcNames = gcNames;
+            this.gcCounts = gcCounts;
+            this.gcMillis = gcMillis;
+            this.allocatedBytes = allocatedBytes;
+            this.ioReadBytes = ioReadBytes;
+            this.ioWriteBytes = ioWriteBytes;
+            this.peakHeapBytes = peakHeapBytes;
+            this.peakDirectBytes = peakDirectBytes;
+            this.items = items;
+            this.logicalBytes = logicalBytes;
+        }
+
+        Segment(String phase, int batchNo, int cpuCores, Snapshot start, Snapshot end, long peakHeapBytes,
+                long peakDirectBytes, long items, long logicalBytes) {
+            this(phase, batchNo, cpuCores, end.nanoTime - start.nanoTime, end.cpuNanos - start.cpuNanos, end.gcNames,
+                    diff(end.gcCounts, start.gcCounts), diff(end.gcTimes, start.gcTimes),
+                    end.allocatedBytes - start.allocatedBytes, end.ioReadBytes - start.ioReadBytes,
+                    end.ioWriteBytes - start.ioWriteBytes, Math.max(peakHeapBytes, end.heapUsedBytes),
+                    Math.max(peakDirectBytes, end.directUsedBytes), items, logicalBytes);
+        }
+
+        Segment plus(Segment o) {
+            return new Segment(phase, 0, cpuCores, wallNanos + o.wallNanos, cpuNanos + o.cpuNanos, gcNames,
+                    sum(gcCounts, o.gcCounts), sum(gcMillis, o.gcMillis), allocatedBytes + o.allocatedBytes,
+                    ioReadBytes + o.ioReadBytes, ioWriteBytes + o.ioWriteBytes,
+                    Math.max(peakHeapBytes, o.peakHeapBytes), Math.max(peakDirectBytes, o.peakDirectBytes),
+                    items + o.items, logicalBytes + o.logicalBytes);
+        }
+
+        public long gcCount() {
+            long sum = 0L;
+            for (long c : gcCounts) sum += c;
+            return sum;
+        }
+
+        public long gcMillis() {
+            long sum = 0L;
+            for (long t : gcMillis) sum += t;
+            return sum;
+        }
+
+        /** Share of all cores kept busy, 0..1. */
+        public double cpuUtilization() {
+            return wallNanos == 0 ? 0.0 : (double) cpuNanos / ((double) wallNanos * cpuCores);
+        }
+
+        /** Stop-the-world GC time, 0..1 of wall time; see {@link #isPauseCollector}. */
+        public double gcShare() {
+            if (wallNanos == 0) return 0.0;
+            long pauseMillis = 0L;
+            for (int i = 0; i < gcNames.length; i++) {
+                if (isPauseCollector(gcNames[i])) pauseMillis += gcMillis[i];
+            }
+            return pauseMillis * 1_000_000.0 / wallNanos;
+        }
+
+        /**
+         * Whether a collector bean's time is pause time. ZGC/Shenandoah "Cycles" beans and G1's "Concurrent GC"
+         * bean report the length of concurrent cycles, which mostly overlap the application, so they are left
+         * out of {@link #gcShare}. Their counts and times are still reported per collector.
+         */
+        static boolean isPauseCollector(String name) {
+            return !name.contains("Cycles") && !name.contains("Concurrent");
+        }
+
+        public double opsPerCpuSecond() {
+            return cpuNanos == 0 ? 0.0 : items / (cpuNanos / 1e9);
+        }
+
+        /** Disk bytes written per logical byte. */
+        public double writeAmplification() {
+            return logicalBytes == 0 ? 0.0 : (double) ioWriteBytes / logicalBytes;
+        }
+
+        /** Disk bytes read per logical byte. */
+        public double readAmplification() {
+            return logicalBytes == 0 ? 0.0 : (double) ioReadBytes / logicalBytes;
+        }
+
+        /** Rough classification: GC pauses above 10% of wall time, else CPU above 80% of all cores, else waiting on I/O or locks. */
+        public String likelyBound() {
+            if (gcShare() > 0.10) return "gc";
+            if (cpuUtilization() > 0.80) return "cpu";
+            return "io/wait";
+        }
+
+        public String summary() {
+            double seconds = wallNanos / 1e9;
+            double allocMbPerSec = seconds == 0 ? 0.0 : allocatedBytes / (1024.0 * 1024.0) / seconds;
+            return String.format(
+                    "cpu=%d ms (%.0f%% of %d cores), ops/cpu-s=%.1f, gc=%d/%d ms (pauses %.1f%%), alloc=%.1f MB/s, heapPeak=%.1f MB, directPeak=%.1f MB, disk r/w=%.2f/%.2f MB, writeAmp=%.2f, readAmp=%.2f, bound=%s",
+                    cpuNanos / 1_000_000, cpuUtilization() * 100.0, cpuCores, opsPerCpuSecond(), gcCount(), gcMillis(),
+                    gcShare() * 100.0, allocMbPerSec, peakHeapBytes / (1024.0 * 1024.0), peakDirectBytes / (1024.0 * 1024.0),
+                    ioReadBytes / (1024.0 * 1024.0), ioWriteBytes / (1024.0 * 1024.0), writeAmplification(),
+                    readAmplification(), likelyBound());
+        }
+
+        public String gcByCollector() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < gcNames.length; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(gcNames[i]).append('=').append(gcCounts[i]).append('/').append(gcMillis[i]).append(" ms");
+            }
+            return sb.toString();
+        }
+
+        private static long[] diff(long[] a, long[] b) {
+            long[] out = new long[a.length];
+            for (int i = 0; i < a.length; i++) out[i] = a[i] - b[i];
+            return out;
+        }
+
+        private static long[] sum(long[] a, long[] b) {
+            long[] out = new long[a.length];
+            for (int i = 0; i < a.length; i++) out[i] = a[i] + b[i];
+            return out;
+        }
+    }
+}
@@ -50,7 +50,7 @@ public class TiKVImageBenchmark {
 
         TiConfiguration conf = TiConfiguration.createRawDefault(pdAddress);
         conf.setEnableAtomicForCAS(true);
-        try (TiSession session = TiSession.create(conf); RawKVClient client = session.createRawClient()) {
+        try (ResourceSampler sampler = new ResourceSampler(); TiSession session = TiSession.create(conf); RawKVClient client = session.createRawClient()) {
             List<File> files = listPngFiles(imagesDir, numImages);
             long plannedBytes = 0L;
             for (File f : files) {
@@ -67,7 +67,7 @@ public class TiKVImageBenchmark {
                         ByteString key = ByteString.copyFromUtf8(file.getName());
                         client.put(key, ByteString.copyFrom(bytes));
                         return (long) bytes.length;
-                    }, "write");
+                    }, "write", sampler);
             double writeMb = write.bytesProcessed / (1024.0 * 1024.0);
             double writeThroughput = writeMb / (write.millis / 1000.0);
             double writeItemsPerSec = write.itemsProcessed / (write.millis / 1000.0);
@@ -81,7 +81,7 @@ public class TiKVImageBenchmark {
                         ByteString key = ByteString.copyFromUtf8(file.getName());
                         var valueOpt = client.get(key);
                         return valueOpt.map(v -> (long) v.size()).orElse(0L);
-                    }, "read");
+                    }, "read", sampler);
             double readMb = read.bytesProcessed / (1024.0 * 1024.0);
             double readThroughput = readMb / (read.millis / 1000.0);
             double readItemsPerSec = read.itemsProcessed / (read.millis / 1000.0);
@@ -89,6 +89,7 @@ public class TiKVImageBenchmark {
             System.out.printf(
                     "Read: items=%d, size=%.2f MB, time=%d ms, MB/s=%.2f, items/s=%.2f, avg=%.2f ms/item, threads=%d%n",
                     read.itemsProcessed, readMb, read.millis, readThroughput, readItemsPerSec, readAvgMsPerItem, threads);
+            sampler.report();
         }
     }
 
@@ -154,13 +155,14 @@ public class TiKVImageBenchmark {
         return new ResultSummary(bytes, files.size(), millis);
     }
 
-    private static ResultSummary runSequentialBatchesWithParallelItems(List<File> files, int batchSize, int threads, FileJob perItemJob, String opName) throws InterruptedException, ExecutionException {
+    private static ResultSummary runSequentialBatchesWithParallelItems(List<File> files, int batchSize, int threads, FileJob perItemJob, String opName, ResourceSampler sampler) throws InterruptedException, ExecutionException {
         List<List<File>> batches = partition(files, batchSize);
         long totalBytes = 0L;
         Instant globalStart = Instant.now();
         long totalItems = files.size();
         for (int i = 0; i < batches.size(); i++) {
             List<File> batch = batches.get(i);
+            sampler.beginBatch(opName, i + 1);
             long start = System.currentTimeMillis();
             ExecutorService pool = Executors.newFixedThreadPool(threads);
             List<Callable<Long>> tasks = new ArrayList<>();
@@ -175,9 +177,10 @@ public class TiKVImageBenchmark {
             }
             long end = System.currentTimeMillis();
             totalBytes += bytes;
+            ResourceSampler.Segment resources = sampler.endBatch(batch.size(), bytes);
             synchronized (System.out) {
-                System.out.printf("%s batch #%d finished by %s: items=%d, start=%d, end=%d, time=%d ms%n",
-                        opName, i + 1, Thread.currentThread().getName(), batch.size(), start, end, (end - start));
+                System.out.printf("%s batch #%d finished by %s: items=%d, start=%d, end=%d, time=%d ms, %s%n",
+                        opName, i + 1, Thread.currentThread().getName(), batch.size(), start, end, (end - start), resources.summary());
                 System.out.flush();
             }
         }